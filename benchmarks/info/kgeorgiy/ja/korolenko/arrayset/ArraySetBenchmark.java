@@ -0,0 +1,169 @@
+package info.kgeorgiy.ja.korolenko.arrayset;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ArraySet} against {@link TreeSet} and a plain sorted array.
+ * Data depends only on parameters, so runs are reproducible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ArraySetBenchmark {
+    private static final int QUERIES = 1 << 12;
+    private static final long SEED = 4242;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"natural", "reverse"})
+    public String order;
+
+    private Comparator<Integer> comparator;
+    private List<Integer> random;
+    private List<Integer> sorted;
+    private Integer[] array;
+    private ArraySet<Integer> arraySet;
+    private TreeSet<Integer> treeSet;
+    // Half of the queries are contained in the sets
+    private Integer[] queries;
+    private int query;
+
+    @Setup
+    public void setup() {
+        comparator = "natural".equals(order) ? null : Comparator.reverseOrder();
+        final Random generator = new Random(SEED);
+        random = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            random.add(generator.nextInt(2 * size));
+        }
+        treeSet = new TreeSet<>(comparator);
+        treeSet.addAll(random);
+        sorted = new ArrayList<>(treeSet);
+        array = sorted.toArray(new Integer[0]);
+        arraySet = new ArraySet<>(random, comparator);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = i % 2 == 0 ? array[generator.nextInt(array.length)] : generator.nextInt(2 * size);
+        }
+    }
+
+    private Integer nextQuery() {
+        query = (query + 1) & (QUERIES - 1);
+        return queries[query];
+    }
+
+    @Benchmark
+    public ArraySet<Integer> constructRandomArraySet() {
+        return new ArraySet<>(random, comparator);
+    }
+
+    @Benchmark
+    public ArraySet<Integer> constructSortedArraySet() {
+        return new ArraySet<>(sorted, comparator);
+    }
+
+    // Copy and linear deduplication, the least work of construction from presorted input
+    @Benchmark
+    public Integer[] constructSortedArray() {
+        final Integer[] result = sorted.toArray(new Integer[0]);
+        int length = Math.min(result.length, 1);
+        for (int i = 1; i < result.length; i++) {
+            if (compare(result[length - 1], result[i]) != 0) {
+                result[length++] = result[i];
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public TreeSet<Integer> constructRandomTreeSet() {
+        final TreeSet<Integer> set = new TreeSet<>(comparator);
+        set.addAll(random);
+        return set;
+    }
+
+    @Benchmark
+    public boolean containsArraySet() {
+        return arraySet.contains(nextQuery());
+    }
+
+    @Benchmark
+    public boolean containsTreeSet() {
+        return treeSet.contains(nextQuery());
+    }
+
+    @Benchmark
+    public boolean containsSortedArray() {
+        return Arrays.binarySearch(array, nextQuery(), comparator) >= 0;
+    }
+
+    @Benchmark
+    public Integer subSetChainArraySet() {
+        final Integer low = nextQuery();
+        final Integer high = nextQuery();
+        final SortedSet<Integer> view = compare(low, high) <= 0 ? arraySet.subSet(low, high) : arraySet.subSet(high, low);
+        return innermost(view);
+    }
+
+    @Benchmark
+    public Integer subSetChainTreeSet() {
+        final Integer low = nextQuery();
+        final Integer high = nextQuery();
+        final SortedSet<Integer> view = compare(low, high) <= 0 ? treeSet.subSet(low, high) : treeSet.subSet(high, low);
+        return innermost(view);
+    }
+
+    // Size of TreeSet views is linear, so chains end with first element, that is logarithmic for both sets
+    private static Integer innermost(final SortedSet<Integer> view) {
+        if (view.isEmpty()) {
+            return null;
+        }
+        final SortedSet<Integer> inner = view.tailSet(view.first()).headSet(view.last());
+        return inner.isEmpty() ? null : inner.first();
+    }
+
+    private int compare(final Integer first, final Integer second) {
+        return comparator == null ? first.compareTo(second) : comparator.compare(first, second);
+    }
+
+    @Benchmark
+    public void iterateArraySet(final Blackhole blackhole) {
+        for (final Integer element : arraySet) {
+            blackhole.consume(element);
+        }
+    }
+
+    @Benchmark
+    public void iterateTreeSet(final Blackhole blackhole) {
+        for (final Integer element : treeSet) {
+            blackhole.consume(element);
+        }
+    }
+
+    @Benchmark
+    public void iterateSortedArray(final Blackhole blackhole) {
+        for (final Integer element : array) {
+            blackhole.consume(element);
+        }
+    }
+
+    @Benchmark
+    public void firstLastArraySet(final Blackhole blackhole) {
+        blackhole.consume(arraySet.first());
+        blackhole.consume(arraySet.last());
+    }
+
+    @Benchmark
+    public void firstLastTreeSet(final Blackhole blackhole) {
+        blackhole.consume(treeSet.first());
+        blackhole.consume(treeSet.last());
+    }
+}
@@ -1,21 +1,52 @@
 package info.kgeorgiy.ja.korolenko.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
-    private final List<T> elements;
+    // Set operations switch from linear merge to galloping, if one set is this many times bigger
+    private static final int GALLOP_RATIO = 16;
+    // Collections of at least this size are sorted and deduplicated in parallel
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int PARALLEL_SEGMENT = 1 << 16;
+
+    // Sorted array without duplicates, shared by the set and all its views
+    private final Object[] elements;
+    // Window [from, to) of the array, that belongs to this set
+    private final int from;
+    private final int to;
     private final Comparator<T> comparator;
 
     public ArraySet(final ArraySet<T> elements) {
-        this.comparator = elements.comparator;
-        this.elements = elements.elements;
+        this(elements.elements, elements.from, elements.to, elements.comparator);
     }
 
     public ArraySet(final Collection<T> elements, final Comparator<T> comparator) {
+        this(elements, comparator, isSortedUnique(elements, comparator));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArraySet(final Collection<T> elements, final Comparator<T> comparator, final boolean sortedUnique) {
         this.comparator = comparator;
-        final TreeSet<T> set = new TreeSet<>(comparator);
-        set.addAll(elements);
-        this.elements = List.copyOf(set);
+        Object[] array = elements.toArray();
+        int length = array.length;
+        if (!sortedUnique && array.length < PARALLEL_THRESHOLD) {
+            if (!isSorted(array, comparator)) {
+                Arrays.sort(array, (Comparator<Object>) comparator);
+            }
+            length = unique(array, comparator);
+        } else if (!sortedUnique) {
+            if (!parallelIsSorted(array, comparator)) {
+                // Stable, like Arrays.sort, so the first of equal elements is still kept
+                Arrays.parallelSort(array, (Comparator<Object>) comparator);
+            }
+            array = parallelUnique(array, comparator);
+            length = array.length;
+        }
+        this.elements = array;
+        this.from = 0;
+        this.to = length;
     }
 
     public ArraySet() {
@@ -30,15 +61,109 @@ public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
         this(List.of(), comparator);
     }
 
+    /**
+     * Creates set from elements, that are already sorted by the comparator, in one linear pass.
+     * Equal elements are allowed, the first one of them is kept. Order is not checked.
+     *
+     * @param elements   elements in non-decreasing order.
+     * @param comparator order of elements or {@code null} for natural order.
+     * @param <T>        element type.
+     * @return new set
+     */
+    public static <T> ArraySet<T> ofSorted(final Collection<T> elements, final Comparator<T> comparator) {
+        final Object[] array = elements.toArray();
+        return new ArraySet<>(array, 0, unique(array, comparator), comparator);
+    }
+
+    private ArraySet(final Object[] elements, final int from, final int to, final Comparator<T> comparator) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.comparator = comparator;
+    }
+
     // :NOTE: удаление
     @Override
     public Iterator<T> iterator() {
-        return elements.iterator();
+        return new Iterator<>() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public T next() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return element(index++);
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new IndexSpliterator(from, to);
+    }
+
+    // Splits the window in halves in O(1)
+    private class IndexSpliterator implements Spliterator<T> {
+        private int index;
+        private final int fence;
+
+        IndexSpliterator(final int index, final int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(element(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action) {
+            while (index < fence) {
+                action.accept(element(index++));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            final Spliterator<T> prefix = new IndexSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
     }
 
     @Override
     public int size() {
-        return elements.size();
+        return to - from;
     }
 
 
@@ -47,57 +172,290 @@ public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
         return this.comparator;
     }
 
+    // Elements of sorted set with the same order are already sorted and unique
+    private static boolean isSortedUnique(final Collection<?> elements, final Comparator<?> comparator) {
+        return elements instanceof SortedSet<?> sorted && Objects.equals(sorted.comparator(), comparator);
+    }
+
+    private static boolean isSorted(final Object[] array, final Comparator<?> comparator) {
+        for (int i = 1; i < array.length; i++) {
+            if (compare(comparator, array[i - 1], array[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Removes equal neighbours of sorted array, keeping the first one, and returns the new length
+    private static int unique(final Object[] array, final Comparator<?> comparator) {
+        int length = Math.min(array.length, 1);
+        for (int i = 1; i < array.length; i++) {
+            if (compare(comparator, array[length - 1], array[i]) != 0) {
+                array[length++] = array[i];
+            }
+        }
+        Arrays.fill(array, length, array.length, null);
+        return length;
+    }
+
+    private static boolean parallelIsSorted(final Object[] array, final Comparator<?> comparator) {
+        return IntStream.range(1, array.length).parallel()
+                .allMatch(i -> compare(comparator, array[i - 1], array[i]) <= 0);
+    }
+
+    /*
+     * Parallel version of unique, that returns new array. Every segment counts elements, that differ from
+     * their predecessors, including the last element of the previous segment, and copies them to the offset
+     * given by prefix sums of the counts.
+     */
+    private static Object[] parallelUnique(final Object[] array, final Comparator<?> comparator) {
+        final int segments = (array.length + PARALLEL_SEGMENT - 1) / PARALLEL_SEGMENT;
+        final int[] offsets = new int[segments + 1];
+        IntStream.range(0, segments).parallel().forEach(segment -> {
+            int count = 0;
+            for (int i = segment * PARALLEL_SEGMENT, end = segmentEnd(segment, array.length); i < end; i++) {
+                if (isDistinct(array, i, comparator)) {
+                    count++;
+                }
+            }
+            offsets[segment + 1] = count;
+        });
+        Arrays.parallelPrefix(offsets, Integer::sum);
+        final Object[] result = new Object[offsets[segments]];
+        IntStream.range(0, segments).parallel().forEach(segment -> {
+            int length = offsets[segment];
+            for (int i = segment * PARALLEL_SEGMENT, end = segmentEnd(segment, array.length); i < end; i++) {
+                if (isDistinct(array, i, comparator)) {
+                    result[length++] = array[i];
+                }
+            }
+        });
+        return result;
+    }
+
+    private static int segmentEnd(final int segment, final int length) {
+        return (int) Math.min((long) (segment + 1) * PARALLEL_SEGMENT, length);
+    }
+
+    private static boolean isDistinct(final Object[] array, final int i, final Comparator<?> comparator) {
+        return i == 0 || compare(comparator, array[i - 1], array[i]) != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(final int index) {
+        return (T) elements[index];
+    }
+
+    private int compare(final T first, final T second) {
+        return compare(comparator, first, second);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(final Comparator<?> comparator, final Object first, final Object second) {
+        return comparator == null
+                ? ((Comparable<Object>) first).compareTo(second)
+                : ((Comparator<Object>) comparator).compare(first, second);
+    }
+
+    // Absolute index of the element in the shared array, or -(insertion point) - 1
+    @SuppressWarnings("unchecked")
+    private int search(final T element) {
+        return Arrays.binarySearch((T[]) elements, from, to, element, comparator);
+    }
 
     private int placeForInsert(final T element){
-        final int number = Collections.binarySearch(this.elements, element, comparator);
+        final int number = search(element);
         return number < 0 ? -number - 1 : number;
     }
 
     @Override
     public ArraySet<T> subSet(final T fromElement, final T toElement) {
-        final int numberToElement = placeForInsert(fromElement);
-        final int numberFromElement = placeForInsert(toElement);
-
-        if (numberToElement >= numberFromElement) {
+        if (compare(fromElement, toElement) > 0) {
             throw new IllegalArgumentException();
         }
-        return subSet(numberFromElement, numberToElement);
+        return subSet(placeForInsert(fromElement), placeForInsert(toElement));
     }
 
+    // Views share the array, so creating a view is O(1) and views of views are not nested
     private ArraySet<T> subSet(final int from, final int to) {
-        return new ArraySet<>(elements.subList(from, to), comparator);
+        return new ArraySet<>(elements, from, to, comparator);
     }
 
     @Override
     public ArraySet<T> headSet(final T toElement) {
-        return subSet(0, placeForInsert(toElement));
+        return subSet(from, placeForInsert(toElement));
     }
 
 
     @Override
     public ArraySet<T> tailSet(final T fromElement) {
-        return subSet(placeForInsert(fromElement), this.elements.size());
+        return subSet(placeForInsert(fromElement), to);
     }
 
     private void nonEmpty() {
-        if (elements.isEmpty()) throw new NoSuchElementException();
+        if (from == to) throw new NoSuchElementException();
     }
 
     @Override
     public T first() {
         nonEmpty();
-        return elements.get(0);
+        return element(from);
     }
 
     @Override
     public T last() {
         nonEmpty();
-        return elements.get(elements.size() - 1);
+        return element(to - 1);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public boolean contains(final Object sub) {
-        return Collections.binarySearch(this.elements, (T) sub, comparator) >= 0;
+        return search((T) sub) >= 0;
+    }
+
+    /**
+     * Merges two sets in linear time. If one set is much smaller, than the other,
+     * the bigger one is skipped with exponential search, so time is {@code O(m log(n / m))}.
+     * Of equal elements the one of this set is kept.
+     *
+     * @param other set with the same comparator.
+     * @return new set of elements of both sets
+     * @throws IllegalArgumentException if comparators of the sets differ.
+     */
+    public ArraySet<T> union(final ArraySet<T> other) {
+        checkComparator(other);
+        final boolean gallop = unbalanced(other);
+        final Object[] result = new Object[size() + other.size()];
+        int length = 0;
+        int i = from;
+        int j = other.from;
+        while (i < to && j < other.to) {
+            final int cmp = compare(element(i), other.element(j));
+            if (cmp < 0) {
+                final int next = gallop ? gallop(elements, i + 1, to, other.elements[j]) : i + 1;
+                System.arraycopy(elements, i, result, length, next - i);
+                length += next - i;
+                i = next;
+            } else if (cmp > 0) {
+                final int next = gallop ? gallop(other.elements, j + 1, other.to, elements[i]) : j + 1;
+                System.arraycopy(other.elements, j, result, length, next - j);
+                length += next - j;
+                j = next;
+            } else {
+                result[length++] = elements[i++];
+                j++;
+            }
+        }
+        System.arraycopy(elements, i, result, length, to - i);
+        length += to - i;
+        System.arraycopy(other.elements, j, result, length, other.to - j);
+        length += other.to - j;
+        return new ArraySet<>(result, 0, length, comparator);
+    }
+
+    /**
+     * Adds batch of elements: only the batch is sorted, then it is merged with this set in one linear pass,
+     * so adding {@code k} elements to a set of {@code n} takes {@code O(n + k log k)}.
+     * Elements of this set are kept over equal elements of the batch.
+     *
+     * @param elements elements to add in any order.
+     * @return new set of elements of this set and of the batch
+     */
+    public ArraySet<T> withAll(final Collection<T> elements) {
+        if (elements.isEmpty()) {
+            return this;
+        }
+        return union(new ArraySet<>(elements, comparator));
+    }
+
+    /**
+     * Intersects two sets in linear time or in {@code O(m log(n / m))}, if one set is much smaller.
+     * Elements of this set are kept.
+     *
+     * @param other set with the same comparator.
+     * @return new set of elements, that are contained in both sets
+     * @throws IllegalArgumentException if comparators of the sets differ.
+     */
+    public ArraySet<T> intersection(final ArraySet<T> other) {
+        checkComparator(other);
+        final boolean gallop = unbalanced(other);
+        final Object[] result = new Object[Math.min(size(), other.size())];
+        int length = 0;
+        int i = from;
+        int j = other.from;
+        while (i < to && j < other.to) {
+            final int cmp = compare(element(i), other.element(j));
+            if (cmp < 0) {
+                i = gallop ? gallop(elements, i + 1, to, other.elements[j]) : i + 1;
+            } else if (cmp > 0) {
+                j = gallop ? gallop(other.elements, j + 1, other.to, elements[i]) : j + 1;
+            } else {
+                result[length++] = elements[i++];
+                j++;
+            }
+        }
+        return new ArraySet<>(result, 0, length, comparator);
+    }
+
+    /**
+     * Subtracts set in linear time or in {@code O(m log(n / m))}, if one set is much smaller.
+     *
+     * @param other set with the same comparator.
+     * @return new set of elements of this set, that are not contained in {@code other}
+     * @throws IllegalArgumentException if comparators of the sets differ.
+     */
+    public ArraySet<T> difference(final ArraySet<T> other) {
+        checkComparator(other);
+        final boolean gallop = unbalanced(other);
+        final Object[] result = new Object[size()];
+        int length = 0;
+        int i = from;
+        int j = other.from;
+        while (i < to && j < other.to) {
+            final int cmp = compare(element(i), other.element(j));
+            if (cmp < 0) {
+                final int next = gallop ? gallop(elements, i + 1, to, other.elements[j]) : i + 1;
+                System.arraycopy(elements, i, result, length, next - i);
+                length += next - i;
+                i = next;
+            } else if (cmp > 0) {
+                j = gallop ? gallop(other.elements, j + 1, other.to, elements[i]) : j + 1;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        System.arraycopy(elements, i, result, length, to - i);
+        length += to - i;
+        return new ArraySet<>(result, 0, length, comparator);
+    }
+
+    private void checkComparator(final ArraySet<T> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("Sets are ordered by different comparators");
+        }
+    }
+
+    // Galloping costs about two comparisons per step instead of one, so it pays off only for skewed sizes
+    private boolean unbalanced(final ArraySet<T> other) {
+        final long min = Math.min(size(), other.size());
+        final long max = Math.max(size(), other.size());
+        return min * GALLOP_RATIO < max;
+    }
+
+    // First index in [lo, hi) of element not less than the key, probing lo, lo + 1, lo + 2, lo + 4, ...
+    @SuppressWarnings("unchecked")
+    private int gallop(final Object[] array, final int lo, final int hi, final Object key) {
+        int left = lo;
+        int right = lo;
+        int step = 1;
+        while (right < hi && compare(comparator, array[right], key) < 0) {
+            left = right + 1;
+            right = hi - lo <= step ? hi : lo + step;
+            step <<= 1;
+        }
+        final int index = Arrays.binarySearch((T[]) array, left, right, (T) key, comparator);
+        return index < 0 ? -index - 1 : index;
     }
 }
@@ -0,0 +1,190 @@
+package info.kgeorgiy.ja.korolenko.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code int} values in natural order, backed by an {@code int[]}.
+ * Primitive overloads of {@code contains}, {@code headSet}, {@code tailSet} and {@code subSet} do not box,
+ * boxed ones keep the class usable as {@code SortedSet<Integer>}.
+ * Views share the array with the set, as in {@link ArraySet}.
+ */
+public class IntArraySet extends AbstractSet<Integer> implements SortedSet<Integer> {
+    private final int[] elements;
+    private final int from;
+    private final int to;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0);
+    }
+
+    public IntArraySet(final int... elements) {
+        final int[] array = elements.clone();
+        Arrays.sort(array);
+        this.elements = array;
+        this.from = 0;
+        this.to = unique(array);
+    }
+
+    public IntArraySet(final Collection<Integer> elements) {
+        this(elements.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private IntArraySet(final int[] elements, final int from, final int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates set from values in non-decreasing order in one linear pass. Order is not checked.
+     * The array is never changed: without duplicates it is shared, otherwise unique values are copied.
+     *
+     * @param elements sorted values, the array should not be changed afterwards.
+     * @return new set
+     */
+    public static IntArraySet ofSorted(final int[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (elements[i - 1] == elements[i]) {
+                final int[] copy = elements.clone();
+                return new IntArraySet(copy, 0, unique(copy));
+            }
+        }
+        return new IntArraySet(elements, 0, elements.length);
+    }
+
+    private static int unique(final int[] array) {
+        int length = Math.min(array.length, 1);
+        for (int i = 1; i < array.length; i++) {
+            if (array[length - 1] != array[i]) {
+                array[length++] = array[i];
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return elements[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<Integer> comparator() {
+        return null;
+    }
+
+    private int placeForInsert(final int element) {
+        final int number = Arrays.binarySearch(elements, from, to, element);
+        return number < 0 ? -number - 1 : number;
+    }
+
+    public boolean contains(final int element) {
+        return Arrays.binarySearch(elements, from, to, element) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object sub) {
+        return sub instanceof Integer element && contains(element.intValue());
+    }
+
+    public IntArraySet subSet(final int fromElement, final int toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException();
+        }
+        return subSetByIndex(placeForInsert(fromElement), placeForInsert(toElement));
+    }
+
+    public IntArraySet headSet(final int toElement) {
+        return subSetByIndex(from, placeForInsert(toElement));
+    }
+
+    public IntArraySet tailSet(final int fromElement) {
+        return subSetByIndex(placeForInsert(fromElement), to);
+    }
+
+    private IntArraySet subSetByIndex(final int from, final int to) {
+        return new IntArraySet(elements, from, to);
+    }
+
+    @Override
+    public IntArraySet subSet(final Integer fromElement, final Integer toElement) {
+        return subSet(fromElement.intValue(), toElement.intValue());
+    }
+
+    @Override
+    public IntArraySet headSet(final Integer toElement) {
+        return headSet(toElement.intValue());
+    }
+
+    @Override
+    public IntArraySet tailSet(final Integer fromElement) {
+        return tailSet(fromElement.intValue());
+    }
+
+    private void nonEmpty() {
+        if (from == to) throw new NoSuchElementException();
+    }
+
+    public int firstInt() {
+        nonEmpty();
+        return elements[from];
+    }
+
+    public int lastInt() {
+        nonEmpty();
+        return elements[to - 1];
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    /**
+     * @return values of the set in ascending order
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof IntArraySet set) {
+            return Arrays.equals(elements, from, to, set.elements, set.from, set.to);
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += Integer.hashCode(elements[i]);
+        }
+        return hash;
+    }
+}
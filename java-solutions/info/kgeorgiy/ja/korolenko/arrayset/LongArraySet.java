@@ -0,0 +1,190 @@
+package info.kgeorgiy.ja.korolenko.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code long} values in natural order, backed by an {@code long[]}.
+ * Primitive overloads of {@code contains}, {@code headSet}, {@code tailSet} and {@code subSet} do not box,
+ * boxed ones keep the class usable as {@code SortedSet<Long>}.
+ * Views share the array with the set, as in {@link ArraySet}.
+ */
+public class LongArraySet extends AbstractSet<Long> implements SortedSet<Long> {
+    private final long[] elements;
+    private final int from;
+    private final int to;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0);
+    }
+
+    public LongArraySet(final long... elements) {
+        final long[] array = elements.clone();
+        Arrays.sort(array);
+        this.elements = array;
+        this.from = 0;
+        this.to = unique(array);
+    }
+
+    public LongArraySet(final Collection<Long> elements) {
+        this(elements.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private LongArraySet(final long[] elements, final int from, final int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates set from values in non-decreasing order in one linear pass. Order is not checked.
+     * The array is never changed: without duplicates it is shared, otherwise unique values are copied.
+     *
+     * @param elements sorted values, the array should not be changed afterwards.
+     * @return new set
+     */
+    public static LongArraySet ofSorted(final long[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (elements[i - 1] == elements[i]) {
+                final long[] copy = elements.clone();
+                return new LongArraySet(copy, 0, unique(copy));
+            }
+        }
+        return new LongArraySet(elements, 0, elements.length);
+    }
+
+    private static int unique(final long[] array) {
+        int length = Math.min(array.length, 1);
+        for (int i = 1; i < array.length; i++) {
+            if (array[length - 1] != array[i]) {
+                array[length++] = array[i];
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return elements[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<Long> comparator() {
+        return null;
+    }
+
+    private int placeForInsert(final long element) {
+        final int number = Arrays.binarySearch(elements, from, to, element);
+        return number < 0 ? -number - 1 : number;
+    }
+
+    public boolean contains(final long element) {
+        return Arrays.binarySearch(elements, from, to, element) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object sub) {
+        return sub instanceof Long element && contains(element.longValue());
+    }
+
+    public LongArraySet subSet(final long fromElement, final long toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException();
+        }
+        return subSetByIndex(placeForInsert(fromElement), placeForInsert(toElement));
+    }
+
+    public LongArraySet headSet(final long toElement) {
+        return subSetByIndex(from, placeForInsert(toElement));
+    }
+
+    public LongArraySet tailSet(final long fromElement) {
+        return subSetByIndex(placeForInsert(fromElement), to);
+    }
+
+    private LongArraySet subSetByIndex(final int from, final int to) {
+        return new LongArraySet(elements, from, to);
+    }
+
+    @Override
+    public LongArraySet subSet(final Long fromElement, final Long toElement) {
+        return subSet(fromElement.longValue(), toElement.longValue());
+    }
+
+    @Override
+    public LongArraySet headSet(final Long toElement) {
+        return headSet(toElement.longValue());
+    }
+
+    @Override
+    public LongArraySet tailSet(final Long fromElement) {
+        return tailSet(fromElement.longValue());
+    }
+
+    private void nonEmpty() {
+        if (from == to) throw new NoSuchElementException();
+    }
+
+    public long firstLong() {
+        nonEmpty();
+        return elements[from];
+    }
+
+    public long lastLong() {
+        nonEmpty();
+        return elements[to - 1];
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    /**
+     * @return values of the set in ascending order
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof LongArraySet set) {
+            return Arrays.equals(elements, from, to, set.elements, set.from, set.to);
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += Long.hashCode(elements[i]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,217 @@
+package info.kgeorgiy.ja.korolenko.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code long} values in natural order, backed by a memory-mapped file.
+ * File is a sequence of strictly increasing big-endian 8-byte values, as written by {@link #write}.
+ * Opening a set maps the file and reads nothing, values stay in the page cache instead of the heap.
+ * Views share the mapping with the set, as in {@link ArraySet}.
+ */
+public class MappedLongArraySet extends AbstractSet<Long> implements SortedSet<Long> {
+    // Every segment but the last one maps 1 GiB of the file, so its indices fit into int
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final LongBuffer[] segments;
+    private final long from;
+    private final long to;
+
+    private MappedLongArraySet(final LongBuffer[] segments, final long from, final long to) {
+        this.segments = segments;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Maps file with values. Order of values is not checked.
+     *
+     * @param file file, written by {@link #write}.
+     * @return new set
+     * @throws IOException if file can't be mapped or its size is not a multiple of 8 bytes.
+     */
+    public static MappedLongArraySet open(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size % Long.BYTES != 0) {
+                throw new IOException("Wrong size of file " + file + " : " + size);
+            }
+            final long length = size / Long.BYTES;
+            final LongBuffer[] segments = new LongBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+                final long segmentSize = Math.min((SEGMENT_MASK + 1) * Long.BYTES, size - position);
+                // Mapping stays valid after the channel is closed
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, segmentSize).asLongBuffer();
+            }
+            return new MappedLongArraySet(segments, 0, length);
+        }
+    }
+
+    /**
+     * Writes values in the format of mapped sets.
+     *
+     * @param file   output file.
+     * @param values strictly increasing values, for example, iterator of {@link LongArraySet}.
+     * @throws IOException if file can't be written.
+     */
+    public static void write(final Path file, final PrimitiveIterator.OfLong values) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (values.hasNext()) {
+                if (buffer.remaining() < Long.BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(values.nextLong());
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private long get(final long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    // Absolute index of the value, or -(insertion point) - 1
+    private long search(final long value) {
+        long low = from;
+        long high = to - 1;
+        while (low <= high) {
+            final long mid = (low + high) >>> 1;
+            final long midValue = get(mid);
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    private long placeForInsert(final long value) {
+        final long number = search(value);
+        return number < 0 ? -number - 1 : number;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    /**
+     * @return number of values, that may exceed {@link Integer#MAX_VALUE}
+     */
+    public long longSize() {
+        return to - from;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Comparator<Long> comparator() {
+        return null;
+    }
+
+    public boolean contains(final long value) {
+        return search(value) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object sub) {
+        return sub instanceof Long value && contains(value.longValue());
+    }
+
+    public MappedLongArraySet subSet(final long fromElement, final long toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException();
+        }
+        return subSetByIndex(placeForInsert(fromElement), placeForInsert(toElement));
+    }
+
+    public MappedLongArraySet headSet(final long toElement) {
+        return subSetByIndex(from, placeForInsert(toElement));
+    }
+
+    public MappedLongArraySet tailSet(final long fromElement) {
+        return subSetByIndex(placeForInsert(fromElement), to);
+    }
+
+    private MappedLongArraySet subSetByIndex(final long from, final long to) {
+        return new MappedLongArraySet(segments, from, to);
+    }
+
+    @Override
+    public MappedLongArraySet subSet(final Long fromElement, final Long toElement) {
+        return subSet(fromElement.longValue(), toElement.longValue());
+    }
+
+    @Override
+    public MappedLongArraySet headSet(final Long toElement) {
+        return headSet(toElement.longValue());
+    }
+
+    @Override
+    public MappedLongArraySet tailSet(final Long fromElement) {
+        return tailSet(fromElement.longValue());
+    }
+
+    private void nonEmpty() {
+        if (from == to) throw new NoSuchElementException();
+    }
+
+    public long firstLong() {
+        nonEmpty();
+        return get(from);
+    }
+
+    public long lastLong() {
+        nonEmpty();
+        return get(to - 1);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+}
@@ -0,0 +1,206 @@
+package info.kgeorgiy.ja.korolenko.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import info.kgeorgiy.java.advanced.student.StudentQuery;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Queries over {@link StudentColumns}, that read the columns and create {@link Student} objects only for results.
+ * Other collections are queried by {@link StudentDB}. Results are the same as of {@link StudentDB}.
+ */
+public class ColumnarStudentDB implements StudentQuery {
+    private final StudentDB fallback = new StudentDB();
+
+    @Override
+    public List<String> getFirstNames(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getFirstNames(students);
+        }
+        List<String> result = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            result.add(columns.firstName(i));
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> getLastNames(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getLastNames(students);
+        }
+        List<String> result = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            result.add(columns.lastName(i));
+        }
+        return result;
+    }
+
+    @Override
+    public List<GroupName> getGroups(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getGroups(students);
+        }
+        List<GroupName> result = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            result.add(columns.groupName(i));
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> getFullNames(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getFullNames(students);
+        }
+        List<String> result = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            result.add(columns.firstName(i) + " " + columns.lastName(i));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getDistinctFirstNames(students);
+        }
+        // Every name of the table is used by some student
+        return new TreeSet<>(Arrays.asList(columns.firstNameTable));
+    }
+
+    @Override
+    public String getMaxStudentFirstName(List<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.getMaxStudentFirstName(students);
+        }
+        int max = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (max < 0 || columns.ids[i] > columns.ids[max]) {
+                max = i;
+            }
+        }
+        return max < 0 ? "" : columns.firstName(max);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(Collection<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.sortStudentsById(students);
+        }
+        // Id in the high half and index in the low one, so equal ids keep their order
+        long[] keys = new long[columns.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) columns.ids[i] << Integer.SIZE) | i;
+        }
+        Arrays.sort(keys);
+        List<Student> result = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            result.add(columns.get((int) key));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(Collection<Student> students) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.sortStudentsByName(students);
+        }
+        return select(columns, i -> true);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.findStudentsByFirstName(students, name);
+        }
+        int code = columns.firstNameCode(name);
+        return code < 0 ? new ArrayList<>() : select(columns, i -> columns.firstNames[i] == code);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.findStudentsByLastName(students, name);
+        }
+        int code = columns.lastNameCode(name);
+        return code < 0 ? new ArrayList<>() : select(columns, i -> columns.lastNames[i] == code);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.findStudentsByGroup(students, group);
+        }
+        byte code = StudentColumns.group(group);
+        return select(columns, i -> columns.groups[i] == code);
+    }
+
+    // Matching students in order of StudentDB.sortStudentsByName, compared by codes of names
+    private static List<Student> select(StudentColumns columns, IntPredicate filter) {
+        int[] rows = new int[columns.size()];
+        int length = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (filter.test(i)) {
+                rows[length++] = i;
+            }
+        }
+        rows = sort(columns, rows, length);
+        List<Student> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(columns.get(rows[i]));
+        }
+        return result;
+    }
+
+    // Bottom-up merge sort of row numbers, stable, so equal students keep their order as in stream sort
+    private static int[] sort(StudentColumns columns, int[] rows, int length) {
+        int[] buffer = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (long from = 0; from < length; from += 2L * width) {
+                int mid = (int) Math.min(from + width, length);
+                int to = (int) Math.min(from + 2L * width, length);
+                int i = (int) from;
+                int j = mid;
+                int k = i;
+                while (i < mid && j < to) {
+                    buffer[k++] = compareRows(columns, rows[j], rows[i]) < 0 ? rows[j++] : rows[i++];
+                }
+                System.arraycopy(rows, i, buffer, k, mid - i);
+                System.arraycopy(rows, j, buffer, k + mid - i, to - j);
+            }
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        return rows;
+    }
+
+    private static int compareRows(StudentColumns columns, int first, int second) {
+        int result = Integer.compare(columns.lastNames[second], columns.lastNames[first]);
+        if (result == 0) {
+            result = Integer.compare(columns.firstNames[second], columns.firstNames[first]);
+        }
+        return result != 0 ? result : Integer.compare(columns.ids[first], columns.ids[second]);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        if (!(students instanceof StudentColumns columns)) {
+            return fallback.findStudentNamesByGroup(students, group);
+        }
+        byte code = StudentColumns.group(group);
+        // The smallest code of first name for every code of last name
+        Map<Integer, Integer> firstNames = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.groups[i] == code) {
+                firstNames.merge(columns.lastNames[i], columns.firstNames[i], Math::min);
+            }
+        }
+        Map<String, String> result = new HashMap<>();
+        firstNames.forEach((last, first) -> result.put(columns.lastNameTable[last], columns.firstNameTable[first]));
+        return result;
+    }
+}
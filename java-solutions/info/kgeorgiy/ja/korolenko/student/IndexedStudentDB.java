@@ -0,0 +1,72 @@
+package info.kgeorgiy.ja.korolenko.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Students, indexed once for repeated queries. Students are sorted by name when the index is built
+ * and posting lists are filled in that order, so queries return prebuilt lists in {@code O(1)}.
+ * Results are the same as of {@link StudentDB} on the collection, the index was built from,
+ * but are unmodifiable.
+ */
+public class IndexedStudentDB {
+    private final List<Student> byName;
+    private final Map<String, List<Student>> byFirstName;
+    private final Map<String, List<Student>> byLastName;
+    // HashMap, as groups may be null
+    private final Map<GroupName, List<Student>> byGroup = new HashMap<>();
+    private final Map<GroupName, Map<String, String>> namesByGroup = new HashMap<>();
+
+    public IndexedStudentDB(Collection<Student> students) {
+        byName = List.copyOf(new StudentDB().sortStudentsByName(students));
+        byFirstName = index(byName, Student::getFirstName, new HashMap<>());
+        byLastName = index(byName, Student::getLastName, new HashMap<>());
+        index(byName, Student::getGroup, byGroup);
+        for (Student student : byName) {
+            namesByGroup.computeIfAbsent(student.getGroup(), group -> new HashMap<>())
+                    .merge(student.getLastName(), student.getFirstName(),
+                            (first, second) -> first.compareTo(second) <= 0 ? first : second);
+        }
+        namesByGroup.replaceAll((group, names) -> Collections.unmodifiableMap(names));
+    }
+
+    // Posting lists keep order of students
+    private static <K> Map<K, List<Student>> index(List<Student> students, Function<Student, K> key,
+                                                   Map<K, List<Student>> index) {
+        for (Student student : students) {
+            index.computeIfAbsent(key.apply(student), k -> new ArrayList<>()).add(student);
+        }
+        index.replaceAll((k, list) -> Collections.unmodifiableList(list));
+        return index;
+    }
+
+    /**
+     * @return all students in order of {@link StudentDB#sortStudentsByName}
+     */
+    public List<Student> sortStudentsByName() {
+        return byName;
+    }
+
+    public List<Student> findStudentsByFirstName(String name) {
+        return byFirstName.getOrDefault(name, List.of());
+    }
+
+    public List<Student> findStudentsByLastName(String name) {
+        return byLastName.getOrDefault(name, List.of());
+    }
+
+    public List<Student> findStudentsByGroup(GroupName group) {
+        return byGroup.getOrDefault(group, List.of());
+    }
+
+    /**
+     * @param group group of students.
+     * @return the smallest first name for every last name of students of the group
+     */
+    public Map<String, String> findStudentNamesByGroup(GroupName group) {
+        return namesByGroup.getOrDefault(group, Map.of());
+    }
+}
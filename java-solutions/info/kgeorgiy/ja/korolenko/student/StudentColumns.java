@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.korolenko.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable list of students, stored by columns: ids in {@code int[]}, groups as ordinal bytes and names as codes
+ * into tables of distinct names. Tables are sorted, so codes compare as the names do.
+ * {@link Student} objects are created only by {@link #get}.
+ */
+public class StudentColumns extends AbstractList<Student> implements RandomAccess {
+    private static final GroupName[] GROUPS = GroupName.values();
+    private static final byte NO_GROUP = -1;
+
+    final int[] ids;
+    final byte[] groups;
+    final int[] firstNames;
+    final int[] lastNames;
+    final String[] firstNameTable;
+    final String[] lastNameTable;
+
+    public StudentColumns(Collection<Student> students) {
+        List<Student> list = List.copyOf(students);
+        ids = new int[list.size()];
+        groups = new byte[list.size()];
+        firstNameTable = table(list, Student::getFirstName);
+        lastNameTable = table(list, Student::getLastName);
+        firstNames = codes(list, Student::getFirstName, firstNameTable);
+        lastNames = codes(list, Student::getLastName, lastNameTable);
+        for (int i = 0; i < list.size(); i++) {
+            Student student = list.get(i);
+            ids[i] = student.getId();
+            groups[i] = group(student.getGroup());
+        }
+    }
+
+    private static String[] table(List<Student> students, Function<Student, String> name) {
+        return students.stream().map(name).distinct().sorted().toArray(String[]::new);
+    }
+
+    private static int[] codes(List<Student> students, Function<Student, String> name, String[] table) {
+        Map<String, Integer> codes = new HashMap<>();
+        for (int i = 0; i < table.length; i++) {
+            codes.put(table[i], i);
+        }
+        return students.stream().map(name).mapToInt(codes::get).toArray();
+    }
+
+    static byte group(GroupName group) {
+        return group == null ? NO_GROUP : (byte) group.ordinal();
+    }
+
+    /**
+     * @param name name to look up.
+     * @return code of the first name or negative number, if there is no such first name
+     */
+    int firstNameCode(String name) {
+        return name == null ? -1 : Arrays.binarySearch(firstNameTable, name);
+    }
+
+    /**
+     * @param name name to look up.
+     * @return code of the last name or negative number, if there is no such last name
+     */
+    int lastNameCode(String name) {
+        return name == null ? -1 : Arrays.binarySearch(lastNameTable, name);
+    }
+
+    String firstName(int index) {
+        return firstNameTable[firstNames[index]];
+    }
+
+    String lastName(int index) {
+        return lastNameTable[lastNames[index]];
+    }
+
+    GroupName groupName(int index) {
+        return groups[index] == NO_GROUP ? null : GROUPS[groups[index]];
+    }
+
+    @Override
+    public Student get(int index) {
+        return new Student(ids[index], firstName(index), lastName(index), groupName(index));
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+}
@@ -7,13 +7,143 @@ import info.kgeorgiy.java.advanced.student.StudentQuery;
 import java.util.*;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentDB implements StudentQuery {
+    // Order of sortStudentsByName and find* results
+    static final Comparator<Student> NAME_ORDER = Comparator.comparing(Student::getLastName)
+            .thenComparing(Student::getFirstName).reversed()
+            .thenComparingInt(Student::getId);
+
+    private final int parallelThreshold;
+
+    /**
+     * Creates sequential queries.
+     */
+    public StudentDB() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates queries, that process collections of at least {@code parallelThreshold} students with parallel streams.
+     * Results are the same as of sequential queries: parallel sort is stable for ordered streams,
+     * reductions keep the first of equal elements and merges of maps are commutative.
+     *
+     * @param parallelThreshold minimal size of collection to process in parallel.
+     */
+    public StudentDB(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    private <T> Stream<T> stream(Collection<T> elements) {
+        return elements.size() >= parallelThreshold ? elements.parallelStream() : elements.stream();
+    }
 
     // Common function for getF
     public <T> List<T> getParameter(List<Student> students, Function<Student, T> function) {
-        return students.stream().map(function).collect(Collectors.toList());
+        return stream(students).map(function).collect(Collectors.toList());
+    }
+
+    /**
+     * Results of {@link #query}, that can be computed in one pass over students.
+     */
+    public enum Projection {
+        FIRST_NAMES, LAST_NAMES, GROUPS, FULL_NAMES, DISTINCT_FIRST_NAMES, MAX_STUDENT_FIRST_NAME
+    }
+
+    /**
+     * Results of {@link #query}. Every getter returns the same as the method of {@link StudentDB} with the same name.
+     */
+    public static class Batch {
+        private final Map<Projection, Object> results = new EnumMap<>(Projection.class);
+
+        @SuppressWarnings("unchecked")
+        private <T> T get(Projection projection) {
+            if (!results.containsKey(projection)) {
+                throw new IllegalStateException("Projection was not requested : " + projection);
+            }
+            return (T) results.get(projection);
+        }
+
+        public List<String> getFirstNames() {
+            return get(Projection.FIRST_NAMES);
+        }
+
+        public List<String> getLastNames() {
+            return get(Projection.LAST_NAMES);
+        }
+
+        public List<GroupName> getGroups() {
+            return get(Projection.GROUPS);
+        }
+
+        public List<String> getFullNames() {
+            return get(Projection.FULL_NAMES);
+        }
+
+        public Set<String> getDistinctFirstNames() {
+            return get(Projection.DISTINCT_FIRST_NAMES);
+        }
+
+        public String getMaxStudentFirstName() {
+            return get(Projection.MAX_STUDENT_FIRST_NAME);
+        }
+    }
+
+    /**
+     * Computes several projections in one pass over students.
+     *
+     * @param students    students to query.
+     * @param projections requested results.
+     * @return requested results
+     */
+    public Batch query(List<Student> students, Set<Projection> projections) {
+        List<String> firstNames = projections.contains(Projection.FIRST_NAMES) ? new ArrayList<>(students.size()) : null;
+        List<String> lastNames = projections.contains(Projection.LAST_NAMES) ? new ArrayList<>(students.size()) : null;
+        List<GroupName> groups = projections.contains(Projection.GROUPS) ? new ArrayList<>(students.size()) : null;
+        List<String> fullNames = projections.contains(Projection.FULL_NAMES) ? new ArrayList<>(students.size()) : null;
+        Set<String> distinct = projections.contains(Projection.DISTINCT_FIRST_NAMES) ? new TreeSet<>() : null;
+        boolean max = projections.contains(Projection.MAX_STUDENT_FIRST_NAME);
+        Student maxStudent = null;
+        for (Student student : students) {
+            if (firstNames != null) {
+                firstNames.add(student.getFirstName());
+            }
+            if (lastNames != null) {
+                lastNames.add(student.getLastName());
+            }
+            if (groups != null) {
+                groups.add(student.getGroup());
+            }
+            if (fullNames != null) {
+                fullNames.add(student.getFirstName() + " " + student.getLastName());
+            }
+            if (distinct != null) {
+                distinct.add(student.getFirstName());
+            }
+            // The first of students with maximal id, as Stream.max
+            if (max && (maxStudent == null || student.getId() > maxStudent.getId())) {
+                maxStudent = student;
+            }
+        }
+        Batch batch = new Batch();
+        putIfRequested(batch, Projection.FIRST_NAMES, firstNames);
+        putIfRequested(batch, Projection.LAST_NAMES, lastNames);
+        putIfRequested(batch, Projection.GROUPS, groups);
+        putIfRequested(batch, Projection.FULL_NAMES, fullNames);
+        putIfRequested(batch, Projection.DISTINCT_FIRST_NAMES, distinct);
+        if (max) {
+            batch.results.put(Projection.MAX_STUDENT_FIRST_NAME, maxStudent == null ? "" : maxStudent.getFirstName());
+        }
+        return batch;
+    }
+
+    private static void putIfRequested(Batch batch, Projection projection, Object result) {
+        if (result != null) {
+            batch.results.put(projection, result);
+        }
     }
 
     @Override
@@ -38,32 +168,30 @@ public class StudentDB implements StudentQuery {
 
     @Override
     public Set<String> getDistinctFirstNames(List<Student> students) {
-        return students.stream().map(Student::getFirstName).collect(Collectors.toCollection(TreeSet::new));
+        return stream(students).map(Student::getFirstName).collect(Collectors.toCollection(TreeSet::new));
     }
 
     @Override
     public String getMaxStudentFirstName(List<Student> students) {
         // :NOTE: redundant .map(Object::toString)
-        return students.stream().max(Comparator.comparingInt(Student::getId))
+        return stream(students).max(Comparator.comparingInt(Student::getId))
                 .map(Student::getFirstName).map(Object::toString).orElse("");
     }
 
     @Override
     public List<Student> sortStudentsById(Collection<Student> students) {
         // :NOTE: можно убрать Comparator.comparingInt(Student::getId)
-        return students.stream().sorted(Comparator.comparingInt(Student::getId)).collect(Collectors.toList());
+        return stream(students).sorted(Comparator.comparingInt(Student::getId)).collect(Collectors.toList());
     }
 
     @Override
     public List<Student> sortStudentsByName(Collection<Student> students) {
-        return students.stream().sorted(Comparator.comparing(Student::getLastName)
-                .thenComparing(Student::getFirstName).reversed()
-                .thenComparingInt(Student::getId)).collect(Collectors.toList());
+        return stream(students).sorted(NAME_ORDER).collect(Collectors.toList());
     }
 
     // K
     private <T> List<Student> findBy(Collection<Student> students, T name, Function<Student, T> function) {
-        return sortStudentsByName(students.stream()
+        return sortStudentsByName(stream(students)
                 .filter(c -> Objects.equals(function.apply(c), name)).collect(Collectors.toList()));
     }
 
@@ -82,9 +210,126 @@ public class StudentDB implements StudentQuery {
         return findBy(students, group, Student::getGroup);
     }
 
+    /**
+     * Position after the last student of a page. Valid only for the same collection in the same order.
+     */
+    public static final class Cursor {
+        private final Student student;
+        private final int index;
+
+        private Cursor(Student student, int index) {
+            this.student = student;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Page of sorted students.
+     *
+     * @param students students of the page.
+     * @param next     cursor of the next page or {@code null}, if there are no more students.
+     */
+    public record Page(List<Student> students, Cursor next) {
+    }
+
+    /**
+     * Returns page of {@link #sortStudentsByName} in {@code O(n log limit)} time and {@code O(limit)} memory.
+     * Equal students are ordered by their positions in the collection, so pages are consecutive parts of the full result.
+     *
+     * @param students students to sort.
+     * @param after    {@link Page#next()} of the previous page or {@code null} for the first page.
+     * @param limit    maximal size of the page.
+     * @return first {@code limit} students, that follow {@code after} in order of {@link #sortStudentsByName}
+     */
+    public Page sortStudentsByName(Collection<Student> students, Cursor after, int limit) {
+        return page(students, student -> true, after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByFirstName}, as {@link #sortStudentsByName(Collection, Cursor, int)}.
+     *
+     * @param students students to search.
+     * @param name     first name.
+     * @param after    {@link Page#next()} of the previous page or {@code null} for the first page.
+     * @param limit    maximal size of the page.
+     * @return page of found students
+     */
+    public Page findStudentsByFirstName(Collection<Student> students, String name, Cursor after, int limit) {
+        return page(students, student -> Objects.equals(student.getFirstName(), name), after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByLastName}, as {@link #sortStudentsByName(Collection, Cursor, int)}.
+     *
+     * @param students students to search.
+     * @param name     last name.
+     * @param after    {@link Page#next()} of the previous page or {@code null} for the first page.
+     * @param limit    maximal size of the page.
+     * @return page of found students
+     */
+    public Page findStudentsByLastName(Collection<Student> students, String name, Cursor after, int limit) {
+        return page(students, student -> Objects.equals(student.getLastName(), name), after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByGroup}, as {@link #sortStudentsByName(Collection, Cursor, int)}.
+     *
+     * @param students students to search.
+     * @param group    group.
+     * @param after    {@link Page#next()} of the previous page or {@code null} for the first page.
+     * @param limit    maximal size of the page.
+     * @return page of found students
+     */
+    public Page findStudentsByGroup(Collection<Student> students, GroupName group, Cursor after, int limit) {
+        return page(students, student -> Objects.equals(student.getGroup(), group), after, limit);
+    }
+
+    // Student with its position in the collection, that breaks ties as stable sort does
+    private record Numbered(int index, Student student) {
+    }
+
+    private static final Comparator<Numbered> NUMBERED_ORDER = Comparator.comparing(Numbered::student, NAME_ORDER)
+            .thenComparingInt(Numbered::index);
+
+    // Keeps the smallest students in a heap with the greatest of them on top
+    private static Page page(Collection<Student> students, Predicate<Student> filter, Cursor after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit : " + limit);
+        }
+        if (limit == 0) {
+            return new Page(new ArrayList<>(), after);
+        }
+        PriorityQueue<Numbered> heap = new PriorityQueue<>(Math.min(limit, students.size()) + 1,
+                NUMBERED_ORDER.reversed());
+        int index = -1;
+        for (Student student : students) {
+            index++;
+            if (!filter.test(student) || after != null && !follows(student, index, after)) {
+                continue;
+            }
+            Numbered numbered = new Numbered(index, student);
+            if (heap.size() < limit) {
+                heap.add(numbered);
+            } else if (NUMBERED_ORDER.compare(numbered, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(numbered);
+            }
+        }
+        Numbered[] result = heap.toArray(new Numbered[0]);
+        Arrays.sort(result, NUMBERED_ORDER);
+        Numbered last = result.length == limit ? result[limit - 1] : null;
+        return new Page(Arrays.stream(result).map(Numbered::student).collect(Collectors.toList()),
+                last == null ? null : new Cursor(last.student(), last.index()));
+    }
+
+    private static boolean follows(Student student, int index, Cursor cursor) {
+        int result = NAME_ORDER.compare(student, cursor.student);
+        return result > 0 || result == 0 && index > cursor.index;
+    }
+
     @Override
     public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
-        return students.stream().filter(c -> c.getGroup() == group)
+        return stream(students).filter(c -> c.getGroup() == group)
                 .collect(Collectors.toMap(
                         Student::getLastName,
                         Student::getFirstName,
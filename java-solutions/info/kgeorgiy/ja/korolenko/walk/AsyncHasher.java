@@ -0,0 +1,173 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hashes files with {@link AsynchronousFileChannel}, keeping a fixed number of files in flight.
+ * Files are opened and digests are updated on a pool of threads as reads complete,
+ * so open and seek latencies of different files overlap.
+ * On Linux the JDK performs opens and reads of file channels as blocking calls on the pool,
+ * so every outstanding read occupies a thread and files overlap only up to the number of threads.
+ */
+public class AsyncHasher implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final int inFlight;
+    private final ExecutorService executor;
+    private final WalkStats stats;
+    // Free slots, every file in flight holds one
+    private final BlockingQueue<Slot> slots;
+
+    private static class Slot {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final MultiDigest digest;
+
+        Slot(final MultiDigest digest) {
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * @param inFlight maximal number of files, that are read at the same time.
+     * @param threads  number of threads, that open and read files and update digests,
+     *                 should be at least {@code inFlight} for all files in flight to be read at the same time.
+     * @param digest   prototype of digests.
+     * @param stats    statistics to record, reads are not counted as I/O time, as they overlap.
+     */
+    public AsyncHasher(final int inFlight, final int threads, final MultiDigest digest, final WalkStats stats) {
+        if (inFlight <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Number of files in flight and threads should be positive");
+        }
+        this.inFlight = inFlight;
+        this.stats = stats;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.slots = new ArrayBlockingQueue<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            slots.add(new Slot(digest.copy()));
+        }
+    }
+
+    /**
+     * @return maximal number of files, that are read at the same time
+     */
+    public int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Starts hashing of the file. Blocks, while maximal number of files is in flight.
+     *
+     * @param path file to hash.
+     * @return future of concatenated digests, completed with {@code null}, if file can't be read
+     * @throws InterruptedIOException if interrupted while waiting for a free slot.
+     */
+    public CompletableFuture<byte[]> digest(final Path path) throws InterruptedIOException {
+        final Slot slot;
+        try {
+            slot = slots.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free slot");
+        }
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final long start = stats.start();
+        executor.execute(() -> {
+            try {
+                final AsynchronousFileChannel channel =
+                        AsynchronousFileChannel.open(path, Set.of(StandardOpenOption.READ), executor);
+                new Reader(channel, slot, result, start).next(0);
+            } catch (final IOException | RuntimeException e) {
+                stats.error(e);
+                finish(slot, result, null);
+            }
+        });
+        return result;
+    }
+
+    private void finish(final Slot slot, final CompletableFuture<byte[]> result, final byte[] hash) {
+        if (hash == null) {
+            slot.digest.reset();
+        }
+        slots.add(slot);
+        result.complete(hash);
+    }
+
+    // Reads of one file are sequential: the next read is issued by completion of the previous one
+    private class Reader implements CompletionHandler<Integer, Long> {
+        private final AsynchronousFileChannel channel;
+        private final Slot slot;
+        private final CompletableFuture<byte[]> result;
+        private final long start;
+
+        Reader(final AsynchronousFileChannel channel, final Slot slot, final CompletableFuture<byte[]> result,
+               final long start) {
+            this.channel = channel;
+            this.slot = slot;
+            this.result = result;
+            this.start = start;
+        }
+
+        void next(final long position) {
+            channel.read(slot.buffer.clear(), position, position, this);
+        }
+
+        @Override
+        public void completed(final Integer read, final Long position) {
+            if (read < 0) {
+                final byte[] hash = slot.digest.digest();
+                stats.file(start, position);
+                close(hash);
+                return;
+            }
+            try {
+                final long digestStart = stats.start();
+                slot.digest.update(slot.buffer.flip());
+                stats.digest(digestStart);
+                next(position + read);
+            } catch (final RuntimeException e) {
+                stats.error(e);
+                close(null);
+            }
+        }
+
+        @Override
+        public void failed(final Throwable exc, final Long position) {
+            stats.error(exc);
+            close(null);
+        }
+
+        private void close(final byte[] hash) {
+            try {
+                channel.close();
+            } catch (final IOException ignored) {
+                // File was read, so it is closed only to release the descriptor
+            }
+            finish(slot, result, hash);
+        }
+    }
+
+    /**
+     * @return statistics, this hasher records
+     */
+    public WalkStats stats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,182 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Feeds file contents to a {@link MultiDigest}, choosing the way of reading by file size:
+ * small files are read through a heap buffer, medium files through a direct buffer
+ * and large files are memory-mapped chunk by chunk.
+ */
+public class FileHasher {
+    public static final long DEFAULT_DIRECT_THRESHOLD = 64 * 1024;
+    public static final long DEFAULT_MAPPED_THRESHOLD = 64 * 1024 * 1024;
+
+    static final int DIRECT_BUFFER_SIZE = 1024 * 1024;
+    private static final int HEAP_BUFFER_SIZE = 8 * 1024;
+    private static final long MAPPED_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Way of reading file contents.
+     */
+    public enum ReadStrategy {
+        HEAP {
+            @Override
+            long update(final FileChannel channel, final long size, final MultiDigest digest,
+                        final WalkStats stats) throws IOException {
+                final ByteBuffer buffer = HEAP_BUFFERS.get().clear();
+                long total = 0;
+                long start = stats.start();
+                while (channel.read(buffer) >= 0) {
+                    start = stats.io(start);
+                    digest.update(buffer.array(), 0, buffer.position());
+                    total += buffer.position();
+                    buffer.clear();
+                    start = stats.digest(start);
+                }
+                return total;
+            }
+        },
+        DIRECT {
+            @Override
+            long update(final FileChannel channel, final long size, final MultiDigest digest,
+                        final WalkStats stats) throws IOException {
+                final ByteBuffer buffer = DIRECT_BUFFERS.get().clear();
+                long total = 0;
+                long start = stats.start();
+                while (channel.read(buffer) >= 0) {
+                    start = stats.io(start);
+                    total += buffer.position();
+                    digest.update(buffer.flip());
+                    buffer.clear();
+                    start = stats.digest(start);
+                }
+                return total;
+            }
+        },
+        MAPPED {
+            // Page faults happen inside digest updates, so only mapping itself is counted as I/O
+            @Override
+            long update(final FileChannel channel, final long size, final MultiDigest digest,
+                        final WalkStats stats) throws IOException {
+                long start = stats.start();
+                for (long position = 0; position < size; position += MAPPED_CHUNK_SIZE) {
+                    final long length = Math.min(MAPPED_CHUNK_SIZE, size - position);
+                    final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    start = stats.io(start);
+                    digest.update(chunk);
+                    start = stats.digest(start);
+                }
+                // File could grow after its size was taken
+                return size + DIRECT.update(channel.position(size), size, digest, stats);
+            }
+        };
+
+        /**
+         * Updates digest with contents of the channel.
+         *
+         * @return number of bytes read
+         */
+        abstract long update(FileChannel channel, long size, MultiDigest digest, WalkStats stats) throws IOException;
+    }
+
+    // Buffers are reused by each thread, as allocating direct memory for every file is expensive
+    private static final ThreadLocal<ByteBuffer> HEAP_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(HEAP_BUFFER_SIZE));
+    static final ThreadLocal<ByteBuffer> DIRECT_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE));
+
+    private final long directThreshold;
+    private final long mappedThreshold;
+    protected final WalkStats stats;
+
+    /**
+     * Creates hasher with default thresholds and without statistics.
+     */
+    public FileHasher() {
+        this(DEFAULT_DIRECT_THRESHOLD, DEFAULT_MAPPED_THRESHOLD, WalkStats.disabled());
+    }
+
+    /**
+     * @param directThreshold minimal size of file, that is read through direct buffer.
+     * @param mappedThreshold minimal size of file, that is memory-mapped.
+     * @param stats           statistics to record.
+     */
+    public FileHasher(final long directThreshold, final long mappedThreshold, final WalkStats stats) {
+        if (directThreshold < 0 || mappedThreshold < 0) {
+            throw new IllegalArgumentException("Thresholds should be non-negative");
+        }
+        this.directThreshold = directThreshold;
+        this.mappedThreshold = mappedThreshold;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns way of reading a file of given size.
+     *
+     * @param size file size in bytes.
+     * @return read strategy
+     */
+    public ReadStrategy strategy(final long size) {
+        if (size >= mappedThreshold) {
+            return ReadStrategy.MAPPED;
+        }
+        return size >= directThreshold ? ReadStrategy.DIRECT : ReadStrategy.HEAP;
+    }
+
+    /**
+     * Updates digest with whole contents of the file.
+     *
+     * @param path   file to read.
+     * @param digest digest to update.
+     * @return number of bytes read
+     * @throws IOException if file can't be read.
+     */
+    public long update(final Path path, final MultiDigest digest) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            return strategy(size).update(channel, size, digest, stats);
+        }
+    }
+
+    /**
+     * Computes digest of the file.
+     *
+     * @param path   file to read.
+     * @param digest digest to use, it is reset afterwards.
+     * @return concatenated digests
+     * @throws IOException if file can't be read.
+     */
+    public byte[] digest(final Path path, final MultiDigest digest) throws IOException {
+        final long start = stats.start();
+        try {
+            final long size = update(path, digest);
+            final byte[] hash = digest.digest();
+            stats.file(start, size);
+            return hash;
+        } catch (final IOException e) {
+            stats.error(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return statistics, this hasher records
+     */
+    public WalkStats stats() {
+        return stats;
+    }
+
+    /**
+     * Returns prefix of every digest column in output, that tells digests of this hasher from plain ones.
+     *
+     * @return empty string for plain digests
+     */
+    public String marker() {
+        return "";
+    }
+}
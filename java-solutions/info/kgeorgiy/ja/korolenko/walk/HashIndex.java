@@ -0,0 +1,183 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes of previous runs, valid for one set of digest algorithms, keyed by absolute path and checked against file key, size and modification time.
+ * Only entries, that were looked up or added during the current run, are saved back.
+ *
+ * <p>Binary format: magic, version, algorithm, number of entries, then for every entry
+ * path, file key, size, modification time in nanoseconds and raw hash bytes.
+ */
+public class HashIndex {
+    private static final int MAGIC = 0x57494458;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private record Entry(String fileKey, long size, long modified, byte[] hash) {
+        boolean matches(final String fileKey, final BasicFileAttributes attrs) {
+            return size == attrs.size() && modified == HashIndex.modified(attrs) && this.fileKey.equals(fileKey);
+        }
+    }
+
+    private final String algorithm;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private HashIndex(final String algorithm, final Map<String, Entry> previous) {
+        this.algorithm = algorithm;
+        this.previous = previous;
+    }
+
+    /**
+     * Creates empty index.
+     *
+     * @param algorithm name of the hash algorithm, index is valid for.
+     */
+    public HashIndex(final String algorithm) {
+        this(algorithm, Map.of());
+    }
+
+    /**
+     * Loads index saved by {@link #save(Path)}. Missing index or index of other algorithm is treated as empty.
+     *
+     * @param file      index file.
+     * @param algorithm name of the hash algorithm.
+     * @return loaded index
+     * @throws IOException if index can't be read or is corrupted.
+     */
+    public static HashIndex load(final Path file, final String algorithm) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a hash index : " + file);
+            }
+            if (!readString(in).equals(algorithm)) {
+                return new HashIndex(algorithm);
+            }
+            final int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupted hash index : " + file);
+            }
+            final Map<String, Entry> entries = new ConcurrentHashMap<>(Math.min(count, 1 << 24));
+            for (int i = 0; i < count; i++) {
+                final String path = readString(in);
+                final String fileKey = readString(in);
+                final long size = in.readLong();
+                final long modified = in.readLong();
+                final byte[] hash = new byte[in.readUnsignedShort()];
+                in.readFully(hash);
+                entries.put(path, new Entry(fileKey, size, modified, hash));
+            }
+            return new HashIndex(algorithm, entries);
+        } catch (final NoSuchFileException e) {
+            return new HashIndex(algorithm);
+        } catch (final EOFException e) {
+            throw new IOException("Truncated hash index : " + file, e);
+        }
+    }
+
+    /**
+     * Writes entries of the current run. The file is replaced atomically, when possible.
+     *
+     * @param file index file.
+     * @throws IOException if index can't be written.
+     */
+    public void save(final Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, algorithm);
+                out.writeInt(current.size());
+                for (final Map.Entry<String, Entry> e : current.entrySet()) {
+                    final Entry entry = e.getValue();
+                    writeString(out, e.getKey());
+                    writeString(out, entry.fileKey());
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.modified());
+                    out.writeShort(entry.hash().length);
+                    out.write(entry.hash());
+                }
+            }
+            try {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns hash of unchanged file.
+     *
+     * @param path  file.
+     * @param attrs current attributes of the file.
+     * @return hash from the previous run or {@code null}, if file is unknown or was changed
+     */
+    public byte[] get(final Path path, final BasicFileAttributes attrs) {
+        final String key = key(path);
+        final Entry entry = previous.get(key);
+        if (entry == null || !entry.matches(fileKey(attrs), attrs)) {
+            return null;
+        }
+        current.put(key, entry);
+        return entry.hash();
+    }
+
+    /**
+     * Remembers hash of the file.
+     *
+     * @param path  file.
+     * @param attrs attributes of the file, taken before it was read.
+     * @param hash  hash bytes.
+     */
+    public void put(final Path path, final BasicFileAttributes attrs, final byte[] hash) {
+        current.put(key(path), new Entry(fileKey(attrs), attrs.size(), modified(attrs), hash));
+    }
+
+    private static String key(final Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKey(final BasicFileAttributes attrs) {
+        return attrs.fileKey() == null ? "" : attrs.fileKey().toString();
+    }
+
+    private static long modified(final BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted hash index");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
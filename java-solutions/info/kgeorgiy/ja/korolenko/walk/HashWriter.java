@@ -0,0 +1,138 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes output lines {@code <hex columns> <path>} in UTF-8 straight into a reusable buffer,
+ * that is flushed to a {@link FileChannel}. Hex digits and ASCII paths are written without creating strings.
+ * Not thread-safe.
+ */
+public class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final int[] columns;
+    private final byte[] marker;
+    private final int lineLength;
+
+    /**
+     * Creates or truncates output file.
+     *
+     * @param file   output file.
+     * @param digest digest, which columns are written.
+     * @param marker ASCII prefix of every column.
+     * @throws IOException if file can't be opened.
+     */
+    public HashWriter(final Path file, final MultiDigest digest, final String marker) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.columns = new int[digest.columns()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = digest.columnLength(i);
+        }
+        this.marker = marker.getBytes(StandardCharsets.US_ASCII);
+        // Marker, hex digits and a space for every column
+        this.lineLength = 2 * digest.length() + columns.length * (this.marker.length + 1);
+    }
+
+    /**
+     * Writes output line.
+     *
+     * @param hash concatenated digests or {@code null} for a file, that can't be read.
+     * @param path path as given in input.
+     * @throws IOException if output can't be written.
+     */
+    public void write(final byte[] hash, final String path) throws IOException {
+        ensure(lineLength);
+        int offset = 0;
+        for (final int column : columns) {
+            buffer.put(marker);
+            for (int i = offset; i < offset + column; i++) {
+                if (hash == null) {
+                    buffer.put(HEX_DIGITS[0]).put(HEX_DIGITS[0]);
+                } else {
+                    buffer.put(HEX_DIGITS[(hash[i] >> 4) & 0xF]).put(HEX_DIGITS[hash[i] & 0xF]);
+                }
+            }
+            buffer.put((byte) ' ');
+            offset += column;
+        }
+        writePath(path);
+        ensure(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void writePath(final String path) throws IOException {
+        final int length = path.length();
+        for (int i = 0; i < length; i++) {
+            final char c = path.charAt(i);
+            if (c >= 0x80) {
+                encode(path, i);
+                return;
+            }
+            ensure(1);
+            buffer.put((byte) c);
+        }
+    }
+
+    // Slow path for non-ASCII paths
+    private void encode(final String path, final int from) throws IOException {
+        final CharBuffer chars = CharBuffer.wrap(path, from, path.length());
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, buffer, true);
+        while (result.isOverflow()) {
+            flush();
+            result = encoder.encode(chars, buffer, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered lines to the file.
+     *
+     * @throws IOException if output can't be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
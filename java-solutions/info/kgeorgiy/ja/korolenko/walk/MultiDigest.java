@@ -0,0 +1,244 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Several digests, updated by the same data in one pass.
+ * Besides {@link MessageDigest} algorithms, checksums {@code CRC32C}, {@code CRC32} and {@code Adler32} are supported.
+ * Digest is a concatenation of digests of all algorithms, formatted as one hex column per algorithm.
+ */
+public class MultiDigest {
+    private static final int CHECKSUM_LENGTH = Integer.BYTES;
+
+    private final List<String> algorithms;
+    // For every algorithm exactly one of messageDigests[i] and checksums[i] is not null
+    private final MessageDigest[] messageDigests;
+    private final Checksum[] checksums;
+    private final int[] lengths;
+    private final int length;
+
+    private MultiDigest(final List<String> algorithms, final MessageDigest[] messageDigests, final Checksum[] checksums) {
+        this.algorithms = algorithms;
+        this.messageDigests = messageDigests;
+        this.checksums = checksums;
+        this.lengths = new int[algorithms.size()];
+        int total = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = messageDigests[i] != null ? messageDigests[i].getDigestLength() : CHECKSUM_LENGTH;
+            total += lengths[i];
+        }
+        this.length = total;
+    }
+
+    /**
+     * Creates digest of given algorithms.
+     *
+     * @param algorithms names of algorithms in the order of output columns.
+     * @return new digest
+     * @throws NoSuchAlgorithmException if some algorithm is not supported.
+     */
+    public static MultiDigest of(final List<String> algorithms) throws NoSuchAlgorithmException {
+        if (algorithms.isEmpty()) {
+            throw new NoSuchAlgorithmException("No digest algorithms given");
+        }
+        final MessageDigest[] messageDigests = new MessageDigest[algorithms.size()];
+        final Checksum[] checksums = new Checksum[algorithms.size()];
+        for (int i = 0; i < algorithms.size(); i++) {
+            checksums[i] = checksum(algorithms.get(i));
+            if (checksums[i] == null) {
+                messageDigests[i] = MessageDigest.getInstance(algorithms.get(i));
+                if (messageDigests[i].getDigestLength() <= 0) {
+                    throw new NoSuchAlgorithmException("Digest length of " + algorithms.get(i) + " is unknown");
+                }
+            }
+        }
+        return new MultiDigest(List.copyOf(algorithms), messageDigests, checksums);
+    }
+
+    /**
+     * Wraps single message digest.
+     *
+     * @param messageDigest digest to wrap.
+     * @return new digest, that updates given one
+     */
+    public static MultiDigest of(final MessageDigest messageDigest) {
+        return new MultiDigest(List.of(messageDigest.getAlgorithm()), new MessageDigest[]{messageDigest}, new Checksum[1]);
+    }
+
+    private static Checksum checksum(final String algorithm) {
+        return switch (algorithm.toUpperCase()) {
+            case "CRC32C" -> new CRC32C();
+            case "CRC32" -> new CRC32();
+            case "ADLER32" -> new Adler32();
+            default -> null;
+        };
+    }
+
+    /**
+     * Creates new digest of the same algorithms, for example, for another thread.
+     *
+     * @return new digest
+     */
+    public MultiDigest copy() {
+        try {
+            return of(algorithms);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorithm disappeared : " + e.getMessage(), e);
+        }
+    }
+
+    public void update(final byte[] bytes, final int offset, final int length) {
+        for (int i = 0; i < lengths.length; i++) {
+            if (messageDigests[i] != null) {
+                messageDigests[i].update(bytes, offset, length);
+            } else {
+                checksums[i].update(bytes, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Updates all digests with remaining bytes of the buffer. Buffer position is moved to its limit.
+     *
+     * @param buffer data.
+     */
+    public void update(final ByteBuffer buffer) {
+        final int position = buffer.position();
+        for (int i = 0; i < lengths.length; i++) {
+            buffer.position(position);
+            if (messageDigests[i] != null) {
+                messageDigests[i].update(buffer);
+            } else {
+                checksums[i].update(buffer);
+            }
+        }
+    }
+
+    /**
+     * Completes all digests and resets them.
+     *
+     * @return concatenated digests
+     */
+    public byte[] digest() {
+        final byte[] result = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (messageDigests[i] != null) {
+                System.arraycopy(messageDigests[i].digest(), 0, result, offset, lengths[i]);
+            } else {
+                writeChecksum(i, result, offset);
+            }
+            offset += lengths[i];
+        }
+        return result;
+    }
+
+    /**
+     * Computes digests of a pair of hashes: for every algorithm, its column of result is digest of
+     * {@code prefix}, its column of {@code left} and its column of {@code right}. Digests are reset afterwards.
+     *
+     * @param prefix byte, that precedes children.
+     * @param left   concatenated digests of the left child.
+     * @param right  concatenated digests of the right child.
+     * @return concatenated digests
+     */
+    public byte[] combine(final byte prefix, final byte[] left, final byte[] right) {
+        final byte[] result = new byte[length];
+        final byte[] prefixBytes = {prefix};
+        int offset = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (messageDigests[i] != null) {
+                messageDigests[i].update(prefixBytes);
+                messageDigests[i].update(left, offset, lengths[i]);
+                messageDigests[i].update(right, offset, lengths[i]);
+                System.arraycopy(messageDigests[i].digest(), 0, result, offset, lengths[i]);
+            } else {
+                checksums[i].update(prefixBytes, 0, 1);
+                checksums[i].update(left, offset, lengths[i]);
+                checksums[i].update(right, offset, lengths[i]);
+                writeChecksum(i, result, offset);
+            }
+            offset += lengths[i];
+        }
+        return result;
+    }
+
+    private void writeChecksum(final int i, final byte[] result, final int offset) {
+        final long value = checksums[i].getValue();
+        checksums[i].reset();
+        for (int j = 0; j < CHECKSUM_LENGTH; j++) {
+            result[offset + j] = (byte) (value >>> 8 * (CHECKSUM_LENGTH - 1 - j));
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < lengths.length; i++) {
+            if (messageDigests[i] != null) {
+                messageDigests[i].reset();
+            } else {
+                checksums[i].reset();
+            }
+        }
+    }
+
+    /**
+     * @return length of concatenated digests in bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return number of output columns
+     */
+    public int columns() {
+        return lengths.length;
+    }
+
+    /**
+     * @param column index of output column.
+     * @return length of digest of the column in bytes
+     */
+    public int columnLength(final int column) {
+        return lengths[column];
+    }
+
+    /**
+     * @return comma-separated names of algorithms
+     */
+    public String name() {
+        return String.join(",", algorithms);
+    }
+
+    /**
+     * Formats digest as space-separated hex columns.
+     *
+     * @param hash result of {@link #digest()}.
+     * @return formatted digest
+     */
+    public String format(final byte[] hash) {
+        final StringJoiner joiner = new StringJoiner(" ");
+        int offset = 0;
+        for (final int columnLength : lengths) {
+            joiner.add(HexFormat.of().formatHex(hash, offset, offset + columnLength));
+            offset += columnLength;
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * @return formatted digest of a file, that can't be read
+     */
+    public String zeros() {
+        return format(new byte[length]);
+    }
+}
@@ -1,4 +1,158 @@
 package info.kgeorgiy.ja.korolenko.walk;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Hashes every file of the directories listed in the input file.
+ * Files are hashed on a work-stealing pool while the tree is still traversed and lines are written
+ * as soon as they are ready, so the order of lines inside a directory is not specified.
+ * With deduplication, file keys of all visited files are remembered and every underlying file is read once.
+ */
 public class RecursiveWalk {
+    // Number of files, that can wait for hashing, per thread
+    private static final int PENDING_PER_THREAD = 64;
+
+    public static void main(final String[] args) throws IOException {
+        Walk.run(args, true);
+    }
+
+    static void hashTrees(final BufferedReader reader, final HashWriter writer,
+                          final int threads, final MultiDigest digest, final FileHasher hasher,
+                          final HashIndex index, final boolean dedup) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final ThreadLocal<MultiDigest> digests = ThreadLocal.withInitial(digest::copy);
+        final int capacity = threads * PENDING_PER_THREAD;
+        // Traversal blocks when too many files are waiting, so memory does not depend on tree size
+        final Semaphore pending = new Semaphore(capacity);
+        final Output output = new Output(writer);
+        // Hashes of files by file key, so hard links and bind-mounted copies are read once
+        final Map<Object, CompletableFuture<byte[]>> known = dedup ? new ConcurrentHashMap<>() : null;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final Path root;
+                try {
+                    // Empty path is the working directory, but in the input it is a missing line, as in Walk
+                    if (line.isEmpty()) {
+                        throw new InvalidPathException(line, "Empty path");
+                    }
+                    root = Paths.get(line);
+                } catch (final InvalidPathException e) {
+                    hasher.stats().error(e);
+                    output.write(null, line);
+                    continue;
+                }
+                final String input = line;
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    // Root is written as given in the input, as in Walk, other files as found by the traversal
+                    private String name(final Path file) {
+                        return file.equals(root) ? input : file.toString();
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                        acquire(pending, 1);
+                        final CompletableFuture<byte[]> hash = new CompletableFuture<>();
+                        final CompletableFuture<byte[]> same = known == null || attrs.fileKey() == null
+                                ? null : known.putIfAbsent(attrs.fileKey(), hash);
+                        (same != null ? same : hash).whenComplete((result, e) -> {
+                            try {
+                                output.write(result, name(file));
+                            } finally {
+                                pending.release();
+                            }
+                        });
+                        if (same == null) {
+                            pool.execute(() -> {
+                                try {
+                                    hash.complete(Walk.hash(file, target(file, attrs), digests.get(), hasher, index));
+                                } catch (final IOException | RuntimeException e) {
+                                    hasher.stats().error(e);
+                                } finally {
+                                    // Does nothing, if hash is computed, otherwise the line is written and its permit is released
+                                    hash.complete(null);
+                                }
+                            });
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+                        hasher.stats().error(exc);
+                        output.write(null, name(file));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    // Listing of the directory failed, files visited before the failure are already hashed
+                    @Override
+                    public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
+                        if (exc != null) {
+                            hasher.stats().error(exc);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            acquire(pending, capacity);
+        } finally {
+            pool.shutdownNow();
+        }
+        output.rethrow();
+    }
+
+    // Links are not followed by the traversal, but their targets are hashed, so the index should check the target
+    private static BasicFileAttributes target(final Path file, final BasicFileAttributes attrs) throws IOException {
+        return attrs.isSymbolicLink() ? Files.readAttributes(file, BasicFileAttributes.class) : attrs;
+    }
+
+    private static void acquire(final Semaphore semaphore, final int permits) throws InterruptedIOException {
+        try {
+            semaphore.acquire(permits);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hashing");
+        }
+    }
+
+    // Writer shared by traversal and hashing threads, that keeps the first write error
+    private static class Output {
+        private final HashWriter writer;
+        private IOException exception;
+
+        Output(final HashWriter writer) {
+            this.writer = writer;
+        }
+
+        synchronized void write(final byte[] hash, final String path) {
+            if (exception != null) {
+                return;
+            }
+            try {
+                writer.write(hash, path);
+            } catch (final IOException e) {
+                exception = e;
+            }
+        }
+
+        synchronized void rethrow() throws IOException {
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes tree hashes, so a single large file is hashed by all cores.
+ * File is split into chunks of fixed size (an empty file has one empty chunk).
+ * Leaf is digest of byte {@code 0} and chunk contents, inner node is digest of byte {@code 1} and both children.
+ * Tree over {@code n > 1} leaves has left subtree over the largest power of two less than {@code n} leaves
+ * and right subtree over the rest, as in RFC 6962.
+ * Digests are marked as {@code merkle-<chunk size>:} in output.
+ */
+public class TreeHasher extends FileHasher {
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+
+    private final long chunkSize;
+
+    /**
+     * @param chunkSize size of chunk in bytes.
+     * @param stats     statistics to record.
+     */
+    public TreeHasher(final long chunkSize, final WalkStats stats) {
+        super(DEFAULT_DIRECT_THRESHOLD, DEFAULT_MAPPED_THRESHOLD, stats);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public byte[] digest(final Path path, final MultiDigest digest) throws IOException {
+        final long start = stats.start();
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long chunks = Math.max(1, (size - 1) / chunkSize + 1);
+            final byte[] hash = ForkJoinPool.commonPool().invoke(new Node(channel, size, digest, 0, chunks));
+            stats.file(start, size);
+            return hash;
+        } catch (final UncheckedIOException e) {
+            stats.error(e.getCause());
+            throw e.getCause();
+        } catch (final IOException e) {
+            stats.error(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public String marker() {
+        return "merkle-" + chunkSize + ":";
+    }
+
+    private class Node extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final MultiDigest prototype;
+        private final long from;
+        private final long count;
+
+        Node(final FileChannel channel, final long size, final MultiDigest prototype, final long from, final long count) {
+            this.channel = channel;
+            this.size = size;
+            this.prototype = prototype;
+            this.from = from;
+            this.count = count;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (count == 1) {
+                try {
+                    return leaf();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            final long split = Long.highestOneBit(count - 1);
+            final Node left = new Node(channel, size, prototype, from, split);
+            left.fork();
+            final byte[] right = new Node(channel, size, prototype, from + split, count - split).compute();
+            // Digests are created per chunk, their cost is negligible comparing to chunk reading
+            return prototype.copy().combine(NODE, left.join(), right);
+        }
+
+        private byte[] leaf() throws IOException {
+            final MultiDigest digest = prototype.copy();
+            digest.update(new byte[]{LEAF}, 0, 1);
+            final ByteBuffer buffer = DIRECT_BUFFERS.get();
+            long position = from * chunkSize;
+            final long end = Math.min(size, position + chunkSize);
+            long start = stats.start();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(DIRECT_BUFFER_SIZE, end - position));
+                final int read = channel.read(buffer, position);
+                start = stats.io(start);
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer.flip());
+                position += read;
+                start = stats.digest(start);
+            }
+            return digest.digest();
+        }
+    }
+}
@@ -1,36 +1,196 @@
 package info.kgeorgiy.ja.korolenko.walk;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Walk {
 
-    static final String zeroString="0".repeat(40);
+    // Number of lines, that can be hashed ahead of the first unwritten one, per thread
+    private static final int WINDOW_PER_THREAD = 16;
+    private static final FileHasher DEFAULT_HASHER = new FileHasher();
+    private static final List<String> DEFAULT_ALGORITHMS = List.of("SHA-1");
 
     public static String getHash(final Path path, final MessageDigest messageDigest) {
-        try (final InputStream r = Files.newInputStream(path)) {
-            final byte[] buffer = new byte[4 * 1024];
-            int read = 0;
+        return getHash(path, MultiDigest.of(messageDigest), DEFAULT_HASHER);
+    }
+
+    public static String getHash(final Path path, final MultiDigest digest, final FileHasher hasher) {
+        final byte[] hash = digest(path, digest, hasher);
+        return hash == null ? digest.zeros() : digest.format(hash);
+    }
+
+    // Returns null, if file can't be read
+    static byte[] digest(final Path path, final MultiDigest digest, final FileHasher hasher) {
+        try {
+            return hasher.digest(path, digest);
+        } catch (final IOException e) {
+            digest.reset();
+            return null;
+        }
+    }
+
+    // Index, if given, is consulted before reading the file. Returns null, if file can't be read
+    static byte[] hash(final Path path, final BasicFileAttributes attrs, final MultiDigest digest,
+                       final FileHasher hasher, final HashIndex index) {
+        if (index == null) {
+            return digest(path, digest, hasher);
+        }
+        byte[] hash = index.get(path, attrs);
+        if (hash == null) {
+            hash = digest(path, digest, hasher);
+            if (hash != null) {
+                index.put(path, attrs, hash);
+            }
+        }
+        return hash;
+    }
+
+    static byte[] hashLine(final String line, final MultiDigest digest,
+                           final FileHasher hasher, final HashIndex index) {
+        try {
+            final Path path = Paths.get(line);
+            if (index == null) {
+                return digest(path, digest, hasher);
+            }
+            return hash(path, Files.readAttributes(path, BasicFileAttributes.class), digest, hasher, index);
+        } catch (final InvalidPathException | IOException e) {
+            hasher.stats().error(e);
+            return null;
+        }
+    }
+
+    private static void hashSequential(final BufferedReader reader, final HashWriter writer,
+                                       final MultiDigest digest, final FileHasher hasher,
+                                       final HashIndex index) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            writer.write(hashLine(line, digest, hasher, index), line);
+        }
+    }
+
+    // Lines are hashed concurrently, but written in input order: the window keeps at most
+    // threads * WINDOW_PER_THREAD pending lines and the oldest one is awaited when it is full.
+    private static void hashParallel(final BufferedReader reader, final HashWriter writer,
+                                     final int threads, final MultiDigest digest, final FileHasher hasher,
+                                     final HashIndex index) throws IOException {
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        final ThreadLocal<MultiDigest> digests = ThreadLocal.withInitial(digest::copy);
+        final int capacity = threads * WINDOW_PER_THREAD;
+        final Queue<String> lines = new ArrayDeque<>(capacity);
+        final Queue<Future<byte[]>> window = new ArrayDeque<>(capacity);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (window.size() == capacity) {
+                    writer.write(await(window.remove()), lines.remove());
+                }
+                final String finalLine = line;
+                lines.add(line);
+                window.add(workers.submit(() -> hashLine(finalLine, digests.get(), hasher, index)));
+            }
+            while (!window.isEmpty()) {
+                writer.write(await(window.remove()), lines.remove());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Same ordered window as in hashParallel, but files are read asynchronously
+    private static void hashAsync(final BufferedReader reader, final HashWriter writer,
+                                  final AsyncHasher hasher, final HashIndex index) throws IOException {
+        final int capacity = hasher.inFlight() * WINDOW_PER_THREAD;
+        final Queue<String> lines = new ArrayDeque<>(capacity);
+        final Queue<Future<byte[]>> window = new ArrayDeque<>(capacity);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (window.size() == capacity) {
+                writer.write(await(window.remove()), lines.remove());
+            }
+            lines.add(line);
+            window.add(hashLineAsync(line, hasher, index));
+        }
+        while (!window.isEmpty()) {
+            writer.write(await(window.remove()), lines.remove());
+        }
+    }
 
-            while ((read = r.read(buffer)) > 0) {
-                messageDigest.update(buffer, 0, read);
+    private static CompletableFuture<byte[]> hashLineAsync(final String line, final AsyncHasher hasher,
+                                                           final HashIndex index) throws IOException {
+        try {
+            final Path path = Paths.get(line);
+            if (index == null) {
+                return hasher.digest(path);
+            }
+            final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            final byte[] known = index.get(path, attrs);
+            if (known != null) {
+                return CompletableFuture.completedFuture(known);
             }
-            final String sha1 = HexFormat.of().formatHex(messageDigest.digest());
-            return sha1;
+            return hasher.digest(path).thenApply(hash -> {
+                if (hash != null) {
+                    index.put(path, attrs, hash);
+                }
+                return hash;
+            });
+        } catch (final InterruptedIOException e) {
+            throw e;
+        } catch (final InvalidPathException | IOException e) {
+            hasher.stats().error(e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static <T> T await(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hash");
+        } catch (final ExecutionException e) {
+            throw new IOException("Unable to hash : " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static HashIndex loadIndex(final Path file, final String algorithm) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return HashIndex.load(file, algorithm);
         } catch (final IOException e) {
-            return zeroString;
+            System.err.println("Unable to load hash index, all files will be read : " + e.getMessage());
+            return new HashIndex(algorithm);
         }
     }
 
     public static void main(final String[] args) throws IOException {
+        run(args, false);
+    }
+
+    static void run(final String[] args, final boolean recursive) throws IOException {
+        if (args == null || args.length < 2 || args[0] == null || args[1] == null) {
+            return;
+        }
 
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
+        final WalkOptions options;
+        try {
+            options = WalkOptions.parse(args, 2);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
             return;
         }
 
@@ -64,29 +224,58 @@ public class Walk {
         }
 
 
+        final MultiDigest digest;
+        try {
+            digest = MultiDigest.of(options.digests(DEFAULT_ALGORITHMS));
+        } catch (final NoSuchAlgorithmException e) {
+            System.err.println("Unsupported digest algorithm : " + e.getMessage());
+            return;
+        }
+
+        if (options.treeChunk() > 0 && options.async() > 0) {
+            System.err.println("Tree hashes can't be computed asynchronously");
+            return;
+        }
+
+        final WalkStats stats = options.stats() != null ? new WalkStats() : WalkStats.disabled();
+        final FileHasher hasher = options.treeChunk() > 0
+                ? new TreeHasher(options.treeChunk(), stats)
+                : new FileHasher(options.directThreshold(), options.mappedThreshold(), stats);
+        stats.startReporting(options.statsPeriod());
         try (
                 final BufferedReader bufferedReader = Files.newBufferedReader(inPath);
-                final BufferedWriter bufferedWriter = Files.newBufferedWriter(outPath)
+                final HashWriter hashWriter = new HashWriter(outPath, digest, hasher.marker())
         ) {
-
-            try {
-                final MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    try {
-                        final Path path = Paths.get(line);
-                        final String hash = getHash(path, messageDigest);
-                        bufferedWriter.write(hash + " " + line + System.lineSeparator());
-                    } catch (final InvalidPathException e) {
-                        bufferedWriter.write(zeroString + " " + line + System.lineSeparator());
-                    }
+            final HashIndex index = loadIndex(options.index(), hasher.marker() + digest.name());
+            if (recursive) {
+                RecursiveWalk.hashTrees(bufferedReader, hashWriter,
+                        options.threads(Runtime.getRuntime().availableProcessors()), digest, hasher, index,
+                        options.dedup());
+            } else if (options.async() > 0) {
+                try (final AsyncHasher asyncHasher = new AsyncHasher(options.async(), options.threads(options.async()), digest, stats)) {
+                    hashAsync(bufferedReader, hashWriter, asyncHasher, index);
                 }
-            } catch (final NoSuchAlgorithmException e) {
-                System.err.println("Sha-1 is not a valid message digest algorithm");
+            } else if (options.threads(1) > 1) {
+                hashParallel(bufferedReader, hashWriter, options.threads(1), digest, hasher, index);
+            } else {
+                hashSequential(bufferedReader, hashWriter, digest, hasher, index);
+            }
+            if (index != null) {
+                index.save(options.index());
             }
-
         } catch (final InvalidPathException | IOException e) {
             System.err.println(e.getMessage());
+        } finally {
+            stats.stopReporting();
+        }
+
+        if (options.stats() != null) {
+            System.err.println(stats.summary());
+            try {
+                stats.write(options.stats());
+            } catch (final IOException e) {
+                System.err.println("Unable to write statistics : " + e.getMessage());
+            }
         }
 
 
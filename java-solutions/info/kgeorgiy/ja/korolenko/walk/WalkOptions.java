@@ -0,0 +1,180 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Optional settings of {@link Walk}, given after input and output files as {@code -name value} pairs.
+ */
+public class WalkOptions {
+    private int threads;
+    private long directThreshold = FileHasher.DEFAULT_DIRECT_THRESHOLD;
+    private long mappedThreshold = FileHasher.DEFAULT_MAPPED_THRESHOLD;
+    private Path index;
+    private List<String> digests;
+    private boolean dedup;
+    private long treeChunk;
+    private int async;
+    private Path stats;
+    private int statsPeriod = 10;
+
+    /**
+     * Parses options starting from {@code args[from]}.
+     *
+     * @param args command line arguments.
+     * @param from index of the first option.
+     * @return parsed options
+     * @throws IllegalArgumentException if an option is unknown or has invalid value.
+     */
+    public static WalkOptions parse(final String[] args, final int from) {
+        final WalkOptions options = new WalkOptions();
+        for (int i = from; i < args.length; i += 2) {
+            if (i + 1 >= args.length || args[i + 1] == null) {
+                throw new IllegalArgumentException("Missing value of option " + args[i]);
+            }
+            final String value = args[i + 1];
+            switch (String.valueOf(args[i])) {
+                case "-threads" -> options.threads = positive(args[i], value);
+                case "-direct" -> options.directThreshold = size(args[i], value);
+                case "-mapped" -> options.mappedThreshold = size(args[i], value);
+                case "-index" -> options.index = path(args[i], value);
+                case "-digests" -> options.digests = List.of(value.split(","));
+                case "-dedup" -> options.dedup = bool(args[i], value);
+                case "-tree" -> options.treeChunk = size(args[i], value);
+                case "-async" -> options.async = positive(args[i], value);
+                case "-stats" -> options.stats = path(args[i], value);
+                case "-statsPeriod" -> options.statsPeriod = positive(args[i], value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static int positive(final String name, final String value) {
+        final int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong format of option " + name + " : " + value);
+        }
+        if (number <= 0) {
+            throw new IllegalArgumentException("Option " + name + " should be positive : " + value);
+        }
+        return number;
+    }
+
+    private static boolean bool(final String name, final String value) {
+        return switch (value) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new IllegalArgumentException("Option " + name + " should be true or false : " + value);
+        };
+    }
+
+    private static Path path(final String name, final String value) {
+        try {
+            return Path.of(value);
+        } catch (final InvalidPathException e) {
+            throw new IllegalArgumentException("Wrong path in option " + name + " : " + e.getMessage());
+        }
+    }
+
+    // Size in bytes with optional k, m or g suffix
+    private static long size(final String name, final String value) {
+        final String lower = value.toLowerCase();
+        final int shift = switch (lower.isEmpty() ? ' ' : lower.charAt(lower.length() - 1)) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            default -> 0;
+        };
+        final String digits = shift == 0 ? lower : lower.substring(0, lower.length() - 1);
+        final long number;
+        try {
+            number = Long.parseLong(digits);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong format of option " + name + " : " + value);
+        }
+        if (number < 0 || number > Long.MAX_VALUE >> shift) {
+            throw new IllegalArgumentException("Option " + name + " is out of range : " + value);
+        }
+        return number << shift;
+    }
+
+    /**
+     * Returns number of hashing threads.
+     *
+     * @param defaultThreads number of threads, if option is not given.
+     * @return number of hashing threads
+     */
+    public int threads(final int defaultThreads) {
+        return threads > 0 ? threads : defaultThreads;
+    }
+
+    /**
+     * @return minimal size of file, that is read through direct buffer
+     */
+    public long directThreshold() {
+        return directThreshold;
+    }
+
+    /**
+     * @return minimal size of file, that is memory-mapped
+     */
+    public long mappedThreshold() {
+        return mappedThreshold;
+    }
+
+    /**
+     * @return file of the incremental hash index or {@code null}, if files are always read
+     */
+    public Path index() {
+        return index;
+    }
+
+    /**
+     * Returns digest algorithms in the order of output columns.
+     *
+     * @param defaultDigests algorithms, if option is not given.
+     * @return digest algorithms
+     */
+    public List<String> digests(final List<String> defaultDigests) {
+        return digests != null ? digests : defaultDigests;
+    }
+
+    /**
+     * @return whether files with the same file key are hashed once by {@link RecursiveWalk}
+     */
+    public boolean dedup() {
+        return dedup;
+    }
+
+    /**
+     * @return chunk size of tree hashes or {@code 0}, if plain digests are computed
+     */
+    public long treeChunk() {
+        return treeChunk;
+    }
+
+    /**
+     * @return number of files read asynchronously at the same time or {@code 0}, if files are read synchronously
+     */
+    public int async() {
+        return async;
+    }
+
+    /**
+     * @return file for statistics in JSON or {@code null}, if statistics are not collected
+     */
+    public Path stats() {
+        return stats;
+    }
+
+    /**
+     * @return period of printing statistics to {@code System.err} in seconds
+     */
+    public int statsPeriod() {
+        return statsPeriod;
+    }
+}
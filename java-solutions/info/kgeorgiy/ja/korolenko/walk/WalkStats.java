@@ -0,0 +1,203 @@
+package info.kgeorgiy.ja.korolenko.walk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a walk: files and bytes hashed, errors by exception type, time spent in I/O and in digests
+ * and a histogram of per-file hashing latency with power-of-two buckets.
+ * Counters are {@link LongAdder}s, so hashing threads do not contend on them.
+ * Methods of disabled statistics do nothing and do not read the clock.
+ */
+public class WalkStats {
+    private static final int BUCKETS = Long.SIZE;
+    private static final WalkStats DISABLED = new WalkStats(false);
+
+    private final boolean enabled;
+    private final long started = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder ioNanos = new LongAdder();
+    private final LongAdder digestNanos = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    // Bucket i counts files hashed in [2^i, 2^(i+1)) nanoseconds
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+    private ScheduledExecutorService reporter;
+
+    private WalkStats(final boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Creates enabled statistics.
+     */
+    public WalkStats() {
+        this(true);
+    }
+
+    /**
+     * @return statistics, that record nothing
+     */
+    public static WalkStats disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return current time for measurement or {@code 0}, if statistics are disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records time spent in I/O since {@code start}.
+     *
+     * @param start result of {@link #start()} or of previous measurement.
+     * @return start of the next measurement
+     */
+    public long io(final long start) {
+        return add(ioNanos, start);
+    }
+
+    /**
+     * Records time spent in digests since {@code start}.
+     *
+     * @param start result of {@link #start()} or of previous measurement.
+     * @return start of the next measurement
+     */
+    public long digest(final long start) {
+        return add(digestNanos, start);
+    }
+
+    private long add(final LongAdder counter, final long start) {
+        if (!enabled) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        counter.add(now - start);
+        return now;
+    }
+
+    /**
+     * Records hashed file.
+     *
+     * @param start result of {@link #start()} before the file was opened.
+     * @param size  number of bytes hashed.
+     */
+    public void file(final long start, final long size) {
+        if (!enabled) {
+            return;
+        }
+        final long latency = Math.max(1, System.nanoTime() - start);
+        files.increment();
+        bytes.add(size);
+        latencies[BUCKETS - 1 - Long.numberOfLeadingZeros(latency)].increment();
+    }
+
+    /**
+     * Records file, that can't be hashed.
+     *
+     * @param e cause of the failure.
+     */
+    public void error(final Throwable e) {
+        if (enabled) {
+            errors.computeIfAbsent(e.getClass().getName(), name -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Starts printing summary to {@code System.err} every {@code period} seconds.
+     *
+     * @param period period in seconds.
+     */
+    public synchronized void startReporting(final long period) {
+        if (!enabled || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "walk-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(summary()), period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops periodic printing.
+     */
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * @return one-line human-readable summary
+     */
+    public String summary() {
+        final double seconds = elapsed() / 1e9;
+        final long io = ioNanos.sum();
+        final long digest = digestNanos.sum();
+        return String.format(Locale.ROOT,
+                "%.1f s: %d files (%.1f/s), %.1f MiB (%.1f MiB/s), %d errors, io %.0f%% / digest %.0f%%",
+                seconds, files.sum(), files.sum() / seconds,
+                bytes.sum() / 1048576.0, bytes.sum() / 1048576.0 / seconds,
+                errors.values().stream().mapToLong(LongAdder::sum).sum(),
+                percent(io, io + digest), percent(digest, io + digest));
+    }
+
+    /**
+     * @return all counters as JSON object
+     */
+    public String toJson() {
+        final long elapsed = elapsed();
+        final double seconds = elapsed / 1e9;
+        final StringJoiner errorsJson = new StringJoiner(",", "{", "}");
+        new TreeMap<>(errors).forEach((type, count) -> errorsJson.add("\"" + type + "\":" + count.sum()));
+        final StringJoiner histogram = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = latencies[i].sum();
+            if (count > 0) {
+                histogram.add("{\"fromNanos\":" + (1L << i) + ",\"count\":" + count + "}");
+            }
+        }
+        return String.format(Locale.ROOT,
+                "{\"elapsedNanos\":%d,\"files\":%d,\"bytes\":%d,\"filesPerSecond\":%.3f,\"bytesPerSecond\":%.3f,"
+                        + "\"ioNanos\":%d,\"digestNanos\":%d,\"errors\":%s,\"latencyHistogram\":%s}",
+                elapsed, files.sum(), bytes.sum(), files.sum() / seconds, bytes.sum() / seconds,
+                ioNanos.sum(), digestNanos.sum(), errorsJson, histogram);
+    }
+
+    /**
+     * Writes counters as JSON.
+     *
+     * @param file output file.
+     * @throws IOException if file can't be written.
+     */
+    public void write(final Path file) throws IOException {
+        Files.writeString(file, toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+    }
+
+    private long elapsed() {
+        return Math.max(1, System.nanoTime() - started);
+    }
+
+    private static double percent(final long part, final long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+}
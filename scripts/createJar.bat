@@ -1,6 +1,6 @@
 cd ..
 
-dir /s /B "*.java" > sources.txt
+dir /s /B "java-solutions\*.java" > sources.txt
 javac -cp ".\..\java-advanced-2022\artifacts\*" @sources.txt -d out/
 
 jar -cfm Implementor.jar java-solutions/info/kgeorgiy/ja/korolenko/implementor/MANIFEST.MF -C out info/kgeorgiy/ja/korolenko/implementor/
@@ -0,0 +1,10 @@
+cd ..
+
+if "%JMH_LIB%"=="" set JMH_LIB=..\jmh\lib
+
+dir /s /B "java-solutions\info\kgeorgiy\ja\korolenko\arrayset\*.java" "benchmarks\*.java" > sources.txt
+javac -cp "%JMH_LIB%\*" @sources.txt -d out-benchmarks/
+
+java -cp "out-benchmarks;%JMH_LIB%\*" org.openjdk.jmh.Main ArraySetBenchmark -rf json -rff arrayset-benchmark.json %*
+
+del sources.txt